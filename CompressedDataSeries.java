@@ -0,0 +1,501 @@
+/** CompressedDataSeries.java */
+
+package edu.washington.apl.aganse.dataTools;
+
+import java.io.*;
+
+/**
+ * CompressedDataSeries - a read-only, compressed copy of a DataSeries, for
+ * holding or archiving large profiles that are regularly sampled in x and
+ * slowly varying in y.<BR>
+ * The points are stored in blocks (default 1024 points each).  Within a block
+ * the x values are delta-of-delta encoded: each x is predicted as the previous
+ * x plus the previous spacing, and only the XOR between the actual and
+ * predicted bits is stored, which costs a single bit per point for exactly
+ * regular sampling.  The y values are XOR encoded against the previous y as
+ * in Facebook's Gorilla time series database.  Both encodings are lossless.<BR>
+ * Each block also stores its min/max and running sums, so the overall
+ * statistics and <CODE>rangeSums(minX,maxX)</CODE> only decode the blocks
+ * that straddle the ends of the range.  <CODE>getX(i)</CODE> and
+ * <CODE>getY(i)</CODE> decode just the block containing point i (and keep it
+ * for the next call), so sequential access decodes each block once.<BR>
+ * The constructors keep the points in the order they're in in the DataSeries;
+ * <CODE>DataSeries.compress()</CODE> and <CODE>saveCompressed()</CODE> use a
+ * sorted copy instead, since sorted x values compress best.
+ * @version 19 Oct 2026
+ * @see <A HREF="DataSeries.html">DataSeries</A>
+ * @see <A HREF="http://www.vldb.org/pvldb/vol8/p1816-teller.pdf">Gorilla: A Fast, Scalable, In-Memory Time Series Database</A>
+ */
+public class CompressedDataSeries {
+
+    /** Default number of points per block */
+    public static final int DEFAULT_BLOCK_SIZE = 1024;
+    private static final int MAGIC = 0x44534331;  // "DSC1"
+
+    private int blockSize;
+    private int numPts=0;
+    private Block[] blocks;
+    private double min_x, min_y, max_x, max_y;
+    private double sum_x=0;
+    private double sum_y=0;
+    private double sum_xx=0;
+    private double sum_yy=0;
+    private double sum_xy=0;
+    // most recently decoded block, for getX(i)/getY(i)
+    private int decodedBlock=-1;
+    private double[] decodedX, decodedY;
+
+    /** Compresses the given DataSeries using the default block size */
+    public CompressedDataSeries(DataSeries data) {
+	this(data, DEFAULT_BLOCK_SIZE);
+    }
+
+    /** Compresses the given DataSeries using blocks of blockSize points */
+    public CompressedDataSeries(DataSeries data, int blockSize) {
+	this(data.xToArray(), data.yToArray(), blockSize);
+    }
+
+    /** Compresses the points x[i],y[i] using blocks of blockSize points */
+    CompressedDataSeries(double[] tmpx, double[] tmpy, int blockSize) {
+	if (blockSize<1)
+	    throw new IllegalArgumentException("CompressedDataSeries: " +
+					       "blockSize must be positive");
+	this.blockSize = blockSize;
+	numPts = tmpx.length;
+	blocks = new Block[(numPts+blockSize-1)/blockSize];
+	for( int b=0; b<blocks.length; b++ ) {
+	    int first = b*blockSize;
+	    blocks[b] = Block.encode(tmpx, tmpy, first,
+				     Math.min(blockSize, numPts-first));
+	}
+	computeTotals();
+    }
+
+    private CompressedDataSeries() {}
+
+    /**
+     * One block of points: the bit-packed encoded values plus the block's
+     * min/max and running sums.
+     */
+    private static class Block {
+	int n;
+	double min_x, min_y, max_x, max_y;
+	double sum_x, sum_y, sum_xx, sum_yy, sum_xy;
+	long[] bits;
+
+	static Block encode(double[] x, double[] y, int first, int n) {
+	    Block blk = new Block();
+	    blk.n = n;
+	    blk.min_x = blk.max_x = x[first];
+	    blk.min_y = blk.max_y = y[first];
+	    BitWriter out = new BitWriter();
+	    XorCoder xc = new XorCoder();
+	    XorCoder yc = new XorCoder();
+	    double prevX=0, prevY=0, prevDelta=0;
+	    for( int i=first; i<first+n; i++ ) {
+		if (i==first) {
+		    out.write(Double.doubleToRawLongBits(x[i]), 64);
+		    out.write(Double.doubleToRawLongBits(y[i]), 64);
+		} else {
+		    xc.write(out, Double.doubleToRawLongBits(x[i]) ^
+			     Double.doubleToRawLongBits(prevX+prevDelta));
+		    yc.write(out, Double.doubleToRawLongBits(y[i]) ^
+			     Double.doubleToRawLongBits(prevY));
+		    prevDelta = x[i]-prevX;
+		}
+		prevX = x[i];
+		prevY = y[i];
+		if (x[i]<blk.min_x) blk.min_x=x[i];
+		if (x[i]>blk.max_x) blk.max_x=x[i];
+		if (y[i]<blk.min_y) blk.min_y=y[i];
+		if (y[i]>blk.max_y) blk.max_y=y[i];
+		blk.sum_x+=x[i];
+		blk.sum_y+=y[i];
+		blk.sum_xx+=x[i]*x[i];
+		blk.sum_yy+=y[i]*y[i];
+		blk.sum_xy+=x[i]*y[i];
+	    }
+	    blk.bits = out.toArray();
+	    return blk;
+	}
+
+	/** Decodes the block's points into x[] and y[] starting at offset */
+	void decode(double[] x, double[] y, int offset) {
+	    BitReader in = new BitReader(bits);
+	    XorCoder xc = new XorCoder();
+	    XorCoder yc = new XorCoder();
+	    double prevX=0, prevY=0, prevDelta=0;
+	    for( int i=offset; i<offset+n; i++ ) {
+		if (i==offset) {
+		    x[i] = Double.longBitsToDouble(in.read(64));
+		    y[i] = Double.longBitsToDouble(in.read(64));
+		} else {
+		    x[i] = Double.longBitsToDouble(xc.read(in) ^
+			   Double.doubleToRawLongBits(prevX+prevDelta));
+		    y[i] = Double.longBitsToDouble(yc.read(in) ^
+			   Double.doubleToRawLongBits(prevY));
+		    prevDelta = x[i]-prevX;
+		}
+		prevX = x[i];
+		prevY = y[i];
+	    }
+	}
+    }
+
+    /**
+     * Gorilla-style coding of the XOR between successive 64-bit values:
+     * a 0 bit for no change, else the meaningful (non-zero) bits, reusing
+     * the previous leading/trailing zero counts when they still fit.
+     */
+    private static class XorCoder {
+	int prevLeading=-1, prevTrailing=0;
+
+	void write(BitWriter out, long xor) {
+	    if (xor==0) {
+		out.write(0,1);
+		return;
+	    }
+	    out.write(1,1);
+	    int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+	    int trailing = Long.numberOfTrailingZeros(xor);
+	    if (prevLeading>=0 && leading>=prevLeading &&
+		trailing>=prevTrailing) {
+		out.write(0,1);
+		out.write(xor>>>prevTrailing, 64-prevLeading-prevTrailing);
+	    } else {
+		int sig = 64-leading-trailing;
+		out.write(1,1);
+		out.write(leading,5);
+		out.write(sig-1,6);
+		out.write(xor>>>trailing, sig);
+		prevLeading = leading;
+		prevTrailing = trailing;
+	    }
+	}
+
+	long read(BitReader in) {
+	    if (in.read(1)==0) return 0;
+	    if (in.read(1)==1) {
+		prevLeading = (int)in.read(5);
+		int sig = (int)in.read(6)+1;
+		prevTrailing = 64-prevLeading-sig;
+	    }
+	    return in.read(64-prevLeading-prevTrailing) << prevTrailing;
+	}
+    }
+
+    /** Appends bit fields (most significant bit first) to a long[] */
+    private static class BitWriter {
+	long[] words = new long[16];
+	long nbits=0;
+
+	void write(long v, int n) {
+	    int w = (int)(nbits>>>6);
+	    int free = 64-(int)(nbits&63);
+	    if (w+1>=words.length) {
+		long[] tmp = new long[2*words.length];
+		System.arraycopy(words, 0, tmp, 0, words.length);
+		words = tmp;
+	    }
+	    v &= mask(n);
+	    if (n<=free) {
+		words[w] |= v << (free-n);
+	    } else {
+		words[w] |= v >>> (n-free);
+		words[w+1] |= v << (64-(n-free));
+	    }
+	    nbits += n;
+	}
+
+	long[] toArray() {
+	    long[] tmp = new long[(int)((nbits+63)>>>6)];
+	    System.arraycopy(words, 0, tmp, 0, tmp.length);
+	    return tmp;
+	}
+    }
+
+    /** Reads back bit fields written by BitWriter */
+    private static class BitReader {
+	long[] words;
+	long nbits=0;
+
+	BitReader(long[] words) {
+	    this.words = words;
+	}
+
+	long read(int n) {
+	    int w = (int)(nbits>>>6);
+	    int free = 64-(int)(nbits&63);
+	    long v;
+	    if (n<=free) {
+		v = (words[w] >>> (free-n)) & mask(n);
+	    } else {
+		int rest = n-free;
+		v = ((words[w] & mask(free)) << rest) |
+		    (words[w+1] >>> (64-rest));
+	    }
+	    nbits += n;
+	    return v;
+	}
+    }
+
+    private static long mask(int n) {
+	return (n==64) ? -1L : (1L<<n)-1;
+    }
+
+    /** Totals up the per-block min/max and sums into the overall ones */
+    private void computeTotals() {
+	for( int b=0; b<blocks.length; b++ ) {
+	    Block blk = blocks[b];
+	    if (b==0) {
+		min_x=blk.min_x; max_x=blk.max_x;
+		min_y=blk.min_y; max_y=blk.max_y;
+	    } else {
+		if (blk.min_x<min_x) min_x=blk.min_x;
+		if (blk.max_x>max_x) max_x=blk.max_x;
+		if (blk.min_y<min_y) min_y=blk.min_y;
+		if (blk.max_y>max_y) max_y=blk.max_y;
+	    }
+	    sum_x+=blk.sum_x;
+	    sum_y+=blk.sum_y;
+	    sum_xx+=blk.sum_xx;
+	    sum_yy+=blk.sum_yy;
+	    sum_xy+=blk.sum_xy;
+	}
+    }
+
+    /** Makes block b the currently decoded one */
+    private void decodeBlock(int b) {
+	if (b==decodedBlock) return;
+	if (decodedX==null) {
+	    decodedX = new double[blockSize];
+	    decodedY = new double[blockSize];
+	}
+	blocks[b].decode(decodedX, decodedY, 0);
+	decodedBlock = b;
+    }
+
+    /** Returns number of datapoints */
+    public int getNumPts() {
+	return numPts;
+    }
+
+    /** Returns number of bytes used by the encoded points (not counting the
+     *  per-block statistics) */
+    public long getEncodedBytes() {
+	long nbytes=0;
+	for( int b=0; b<blocks.length; b++ ) nbytes += 8*blocks[b].bits.length;
+	return nbytes;
+    }
+
+    /** Returns x-value (as double) at specified index */
+    public double getX(int index) {
+	if (index<0 || index>=numPts)
+	    throw new ArrayIndexOutOfBoundsException(index);
+	decodeBlock(index/blockSize);
+	return decodedX[index%blockSize];
+    }
+
+    /** Returns y-value (as double) at specified index */
+    public double getY(int index) {
+	if (index<0 || index>=numPts)
+	    throw new ArrayIndexOutOfBoundsException(index);
+	decodeBlock(index/blockSize);
+	return decodedY[index%blockSize];
+    }
+
+    /** Returns an array of all the X values, decoded sequentially */
+    public double[] xToArray() {
+	double[] xTmp = new double[numPts];
+	double[] yTmp = new double[numPts];
+	decodeAll(xTmp, yTmp);
+	return xTmp;
+    }
+
+    /** Returns an array of all the Y values, decoded sequentially */
+    public double[] yToArray() {
+	double[] xTmp = new double[numPts];
+	double[] yTmp = new double[numPts];
+	decodeAll(xTmp, yTmp);
+	return yTmp;
+    }
+
+    private void decodeAll(double[] x, double[] y) {
+	for( int b=0; b<blocks.length; b++ )
+	    blocks[b].decode(x, y, b*blockSize);
+    }
+
+    /** Decompresses into a new (regular) DataSeries */
+    public DataSeries toDataSeries() {
+	DataSeries output = new DataSeries();
+	addTo(output);
+	return output;
+    }
+
+    /** Adds all the decompressed points onto the end of the given DataSeries */
+    public void addTo(DataSeries data) {
+	double[] xTmp = new double[numPts];
+	double[] yTmp = new double[numPts];
+	decodeAll(xTmp, yTmp);
+	for( int i=0; i<numPts; i++ ) data.add(xTmp[i], yTmp[i]);
+    }
+
+    /** Returns minimum x value */
+    public double getMinX() {
+	return min_x;
+    }
+
+    /** Returns minimum y value */
+    public double getMinY() {
+	return min_y;
+    }
+
+    /** Returns maximum x value */
+    public double getMaxX() {
+	return max_x;
+    }
+
+    /** Returns maximum y value */
+    public double getMaxY() {
+	return max_y;
+    }
+
+    /** Returns sum of x values */
+    public double getSumX() {
+	return sum_x;
+    }
+
+    /** Returns sum of y values */
+    public double getSumY() {
+	return sum_y;
+    }
+
+    /** Returns mean x-value of datapoints */
+    public double getXmean() {
+	return sum_x / numPts;
+    }
+
+    /** Returns mean y-value of datapoints */
+    public double getYmean() {
+	return sum_y / numPts;
+    }
+
+    /** Returns the count and running sums of the points with
+     *  minX &lt;= x &lt;= maxX.  Blocks lying wholly inside or outside the
+     *  range are handled from their stored statistics; only blocks that
+     *  straddle an end of the range get decoded.  Returned array contains:<BR>
+     *  <CODE><SMALL>
+     *  a[0] = number of points in range<BR>
+     *  a[1] = sum of x values<BR>
+     *  a[2] = sum of y values<BR>
+     *  a[3] = sum of x*x values<BR>
+     *  a[4] = sum of y*y values<BR>
+     *  a[5] = sum of x*y values<BR>
+     *  </SMALL></CODE> */
+    public double[] rangeSums(double minX, double maxX) {
+	double[] s = new double[6];
+	double[] xTmp = null, yTmp = null;
+	for( int b=0; b<blocks.length; b++ ) {
+	    Block blk = blocks[b];
+	    if (blk.max_x<minX || blk.min_x>maxX) continue;
+	    if (blk.min_x>=minX && blk.max_x<=maxX) {
+		s[0]+=blk.n;
+		s[1]+=blk.sum_x;
+		s[2]+=blk.sum_y;
+		s[3]+=blk.sum_xx;
+		s[4]+=blk.sum_yy;
+		s[5]+=blk.sum_xy;
+	    } else {
+		if (xTmp==null) {
+		    xTmp = new double[blockSize];
+		    yTmp = new double[blockSize];
+		}
+		blk.decode(xTmp, yTmp, 0);
+		for( int i=0; i<blk.n; i++ ) {
+		    if (xTmp[i]<minX || xTmp[i]>maxX) continue;
+		    s[0]++;
+		    s[1]+=xTmp[i];
+		    s[2]+=yTmp[i];
+		    s[3]+=xTmp[i]*xTmp[i];
+		    s[4]+=yTmp[i]*yTmp[i];
+		    s[5]+=xTmp[i]*yTmp[i];
+		}
+	    }
+	}
+	return s;
+    }
+
+    /** Returns mean y-value of the datapoints with minX &lt;= x &lt;= maxX */
+    public double getYmean(double minX, double maxX) {
+	double[] s = rangeSums(minX, maxX);
+	return s[2]/s[0];
+    }
+
+    /** Writes the compressed points and block statistics to a binary file */
+    public void writeToFile(String filename) throws IOException {
+	DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+	    new FileOutputStream(filename)));
+	try {
+	    out.writeInt(MAGIC);
+	    out.writeInt(blockSize);
+	    out.writeInt(numPts);
+	    for( int b=0; b<blocks.length; b++ ) {
+		Block blk = blocks[b];
+		out.writeDouble(blk.min_x);
+		out.writeDouble(blk.max_x);
+		out.writeDouble(blk.min_y);
+		out.writeDouble(blk.max_y);
+		out.writeDouble(blk.sum_x);
+		out.writeDouble(blk.sum_y);
+		out.writeDouble(blk.sum_xx);
+		out.writeDouble(blk.sum_yy);
+		out.writeDouble(blk.sum_xy);
+		out.writeInt(blk.bits.length);
+		for( int i=0; i<blk.bits.length; i++ )
+		    out.writeLong(blk.bits[i]);
+	    }
+	} finally {
+	    out.close();
+	}
+    }
+
+    /** Reads a CompressedDataSeries written by writeToFile().  The points
+     *  stay compressed; use toDataSeries() or addTo() to expand them. */
+    public static CompressedDataSeries readFromFile(String filename)
+	throws IOException {
+	DataInputStream in = new DataInputStream(new BufferedInputStream(
+	    new FileInputStream(filename)));
+	try {
+	    if (in.readInt()!=MAGIC)
+		throw new IOException(filename +
+				      " is not a compressed DataSeries file");
+	    CompressedDataSeries c = new CompressedDataSeries();
+	    c.blockSize = in.readInt();
+	    c.numPts = in.readInt();
+	    if (c.blockSize<1 || c.numPts<0)
+		throw new IOException(filename + " has a corrupt header");
+	    c.blocks = new Block[(int)(((long)c.numPts+c.blockSize-1)/c.blockSize)];
+	    for( int b=0; b<c.blocks.length; b++ ) {
+		Block blk = new Block();
+		blk.n = Math.min(c.blockSize, c.numPts-b*c.blockSize);
+		blk.min_x = in.readDouble();
+		blk.max_x = in.readDouble();
+		blk.min_y = in.readDouble();
+		blk.max_y = in.readDouble();
+		blk.sum_x = in.readDouble();
+		blk.sum_y = in.readDouble();
+		blk.sum_xx = in.readDouble();
+		blk.sum_yy = in.readDouble();
+		blk.sum_xy = in.readDouble();
+		blk.bits = new long[in.readInt()];
+		for( int i=0; i<blk.bits.length; i++ )
+		    blk.bits[i] = in.readLong();
+		c.blocks[b] = blk;
+	    }
+	    c.computeTotals();
+	    return c;
+	} finally {
+	    in.close();
+	}
+    }
+}
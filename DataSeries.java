@@ -34,7 +34,17 @@ public class DataSeries extends Vector {
     private double sum_xx=0;
     private double sum_yy=0;
     private double sum_xy=0;
-    private double[] dYdX;
+    private QuantileSketch ySketch = new QuantileSketch();
+    private Histogram yHist;  // only kept after setHistogramY()
+    /** Default cap on the derived-results cache, in doubles (8MB) */
+    private static final long DEFAULT_CACHE_LIMIT = 1L<<20;
+    private transient LinkedHashMap<String,double[][]> cache;
+    private transient int cacheChangeCount;
+    private transient long cacheSize=0;
+    private long cacheLimit=DEFAULT_CACHE_LIMIT;
+    private transient int sortedChangeCount=-1;
+    // replacements via set(), which Vector doesn't count in modCount
+    private transient int replaceCount=0;
 
     /** Create an empty DataSeries */
     public DataSeries() {}
@@ -101,6 +111,251 @@ public class DataSeries extends Vector {
 	}
     }
 
+    /** Replaces the Point at the given index.  Counted as a change so that
+     *  sorted state and cached derived results get invalidated. */
+    @SuppressWarnings("unchecked")  // raw Vector
+    public Object set(int index, Object element) {
+	replaceCount++;
+	return super.set(index, element);
+    }
+
+    /** Replaces the Point at the given index.  Counted as a change so that
+     *  sorted state and cached derived results get invalidated. */
+    @SuppressWarnings("unchecked")  // raw Vector
+    public void setElementAt(Object obj, int index) {
+	replaceCount++;
+	super.setElementAt(obj, index);
+    }
+
+    /** Returns a count that goes up on every change to the points: the
+     *  inherited modCount for structural changes plus replaceCount for
+     *  replacements (kept separate since modCount is what Vector's
+     *  iterators use to detect concurrent modification). */
+    private int changeCount() {
+	return modCount+replaceCount;
+    }
+
+    /** Returns a copy of the dataseries (sharing the Points, which can't be
+     *  changed).  The copy starts with no sorted state or cached results,
+     *  since Vector.clone() resets its modCount and so the copied ones
+     *  could otherwise look current again after changes to the copy.  The
+     *  y quantile sketch and histogram are copied so the two dataseries'
+     *  statistics stay independent. */
+    public Object clone() {
+	DataSeries copy = (DataSeries)super.clone();
+	copy.cache=null;
+	copy.cacheSize=0;
+	copy.sortedChangeCount=-1;
+	copy.ySketch = new QuantileSketch(ySketch);
+	if (yHist!=null) copy.yHist = new Histogram(yHist);
+	return copy;
+    }
+
+    /**
+     * Lazy chain of transformations on a dataseries, obtained from
+     * <CODE>DataSeries.pipeline()</CODE>.  Each stage method just records
+     * the stage and returns this Pipeline; nothing is computed until
+     * <CODE>toDataSeries()</CODE>, which pushes each source point through
+     * all the stages in a single pass over primitive arrays.<BR>
+     * The pipeline keeps track of whether the x values are currently in
+     * ascending or descending order (a negative x scale reverses it), and
+     * walks the source backwards when that gives sorted output, so e.g.
+     * negateX() costs a reversal rather than a sort.  The order-dependent
+     * stages window() and resample() need ascending input; if the walk
+     * direction is already committed the other way, the stages so far are
+     * materialized once and the chain continues from there.
+     */
+    public static class Pipeline {
+	private static final int MAPX=0, MAPY=1, FILTERX=2, WINDOW=3, RESAMPLE=4,
+	    NEGATEX=5;
+	private double[] xs, ys;  // source values, ascending in x
+	private int n;
+	private int nOps=0;
+	private int[] opType = new int[4];
+	private double[] opA = new double[4], opB = new double[4];
+	private boolean ascending=true;  // x order if source walked forwards
+	private int dir=0;  // source walk: +1 forwards, -1 backwards, 0 not yet fixed
+	// per-pass state for the fused walk, and its output
+	private double[] stateX, stateY, stateX0;
+	private long[] stateK;
+	private double[] outX, outY;
+	private int outN;
+
+	private Pipeline(double[] xs, double[] ys, int n) {
+	    this.xs=xs; this.ys=ys; this.n=n;
+	}
+
+	/** Maps each x value to scale*x+offset */
+	public Pipeline mapX(double scale, double offset) {
+	    if (scale<0) ascending=!ascending;
+	    return addOp(MAPX, scale, offset);
+	}
+
+	/** Maps each y value to scale*y+offset */
+	public Pipeline mapY(double scale, double offset) {
+	    return addOp(MAPY, scale, offset);
+	}
+
+	/** Multiplies -1 by each X value, reversing the sort order */
+	public Pipeline negateX() {
+	    ascending=!ascending;
+	    return addOp(NEGATEX, 0., 0.);
+	}
+
+	/** Keeps only points with minX &lt;= x &lt;= maxX */
+	public Pipeline filterX(double minX, double maxX) {
+	    return addOp(FILTERX, minX, maxX);
+	}
+
+	/** Keeps only points minInd through maxInd (both inclusive) of the
+	 *  sorted points coming out of the previous stages, as subSeries(). */
+	public Pipeline window(int minInd, int maxInd) {
+	    needAscending();
+	    return addOp(WINDOW, minInd, maxInd);
+	}
+
+	/** Linearly interpolates the points coming out of the previous stages
+	 *  at the given x increment, starting at their lowest x value, exactly
+	 *  as DataSeries.resample(incr); an increment &lt;= 0 gives no points. */
+	public Pipeline resample(double incr) {
+	    needAscending();
+	    return addOp(RESAMPLE, incr, 0.);
+	}
+
+	/** Runs the pipeline and returns the result as a new DataSeries,
+	 *  sorted by x. */
+	public DataSeries toDataSeries() {
+	    int d = (dir!=0) ? dir : (ascending ? 1 : -1);
+	    run(d);
+	    DataSeries output = new DataSeries();
+	    for( int i=0; i<outN; i++ ) output.add(outX[i], outY[i]);
+	    if (d!=(ascending ? 1 : -1)) output.sort();
+	    else output.sortedChangeCount=output.changeCount();  // already sorted
+	    return output;
+	}
+
+	/** Fixes the source walk direction so the next stage sees ascending
+	 *  x values, materializing the stages so far if it's already fixed
+	 *  the other way. */
+	private void needAscending() {
+	    int want = ascending ? 1 : -1;
+	    if (dir==0) {
+		dir=want;
+	    } else if (dir!=want) {
+		run(dir);
+		// walk output backwards into the new ascending source
+		xs = new double[outN];
+		ys = new double[outN];
+		n=0;
+		for( int i=outN-1; i>=0; ) {
+		    int j = runStart(outX, i);
+		    for( int m=j; m<=i; m++, n++ ) {
+			xs[n] = outX[m];
+			ys[n] = outY[m];
+		    }
+		    i=j-1;
+		}
+		nOps=0;
+		ascending=true;
+		dir=1;
+	    }
+	}
+
+	private Pipeline addOp(int type, double a, double b) {
+	    if (nOps==opType.length) {
+		opType = Arrays.copyOf(opType, 2*nOps);
+		opA = Arrays.copyOf(opA, 2*nOps);
+		opB = Arrays.copyOf(opB, 2*nOps);
+	    }
+	    opType[nOps]=type; opA[nOps]=a; opB[nOps]=b;
+	    nOps++;
+	    return this;
+	}
+
+	/** The fused pass: pushes every source point through all the stages,
+	 *  walking the source in direction d, into outX/outY. */
+	private void run(int d) {
+	    stateX = new double[nOps];
+	    stateY = new double[nOps];
+	    stateX0 = new double[nOps];
+	    stateK = new long[nOps];
+	    outX = new double[Math.max(n,16)];
+	    outY = new double[outX.length];
+	    outN=0;
+	    if (d>0) {
+		for( int i=0; i<n; i++ ) push(0, xs[i], ys[i]);
+	    } else {
+		// backwards by runs of equal x, each run still forwards, so the
+		// result matches a stable sort
+		for( int i=n-1; i>=0; ) {
+		    int j = runStart(xs, i);
+		    for( int m=j; m<=i; m++ ) push(0, xs[m], ys[m]);
+		    i=j-1;
+		}
+	    }
+	    stateX=stateY=stateX0=null;
+	    stateK=null;
+	}
+
+	/** Returns the first index of the run of values equal to x[i] that
+	 *  ends at i (equal as in Double.compare, which sorting uses) */
+	private static int runStart(double[] x, int i) {
+	    int j=i;
+	    while( j>0 && Double.compare(x[j-1],x[i])==0 ) j--;
+	    return j;
+	}
+
+	private void push(int op, double x, double y) {
+	    for( ; op<nOps; op++ ) {
+		switch (opType[op]) {
+		case MAPX:
+		    x = opA[op]*x+opB[op];
+		    break;
+		case NEGATEX:
+		    x = -x;
+		    break;
+		case MAPY:
+		    y = opA[op]*y+opB[op];
+		    break;
+		case FILTERX:
+		    if (x<opA[op] || x>opB[op]) return;
+		    break;
+		case WINDOW:
+		    long k = stateK[op]++;
+		    if (k<opA[op] || k>opB[op]) return;
+		    break;
+		case RESAMPLE:
+		    // stateX/Y = previous point, stateX0 = grid origin,
+		    // stateK = next grid index
+		    double incr = opA[op];
+		    if (!(incr>0)) return;
+		    if (stateK[op]==0) {
+			stateX0[op]=x;
+			stateK[op]=1;
+			push(op+1, x, y);
+		    } else {
+			double x0=stateX[op], y0=stateY[op];
+			double newx;
+			while( (newx=stateX0[op]+stateK[op]*incr) <= x ) {
+			    push(op+1, newx, y0+(newx-x0)*((y-y0)/(x-x0)));
+			    stateK[op]++;
+			}
+		    }
+		    stateX[op]=x;
+		    stateY[op]=y;
+		    return;
+		}
+	    }
+	    if (outN==outX.length) {
+		outX = Arrays.copyOf(outX, 2*outN);
+		outY = Arrays.copyOf(outY, 2*outN);
+	    }
+	    outX[outN]=x;
+	    outY[outN]=y;
+	    outN++;
+	}
+    }
+
     /** Adds a preconfigured DataSeries.Point object to DataSeries */
     public void add(Point p) {
 	add(p.getX(), p.getY());
@@ -130,6 +385,8 @@ public class DataSeries extends Vector {
 	sum_xx+=x*x;
 	sum_yy+=y*y;
 	sum_xy+=x*y;
+	ySketch.add(y);
+	if (yHist!=null) yHist.add(y);
     }
 
 
@@ -175,7 +432,37 @@ public class DataSeries extends Vector {
 		    System.exit(1);
 		}
 	}
-	
+
+
+	/** load dataseries points from binary file written by saveCompressed() */
+	public void loadFromCompressedFile(String filename) {
+		CompressedDataSeries compressed = null;
+		try {
+			compressed = CompressedDataSeries.readFromFile(filename);
+		} catch(IOException err) {
+		    System.out.println(
+							   "DataSeries.loadFromCompressedFile: i/o trouble with file " +
+							   filename + "\n" + err.toString());
+		    System.exit(1);
+		}
+		clear();
+		compressed.addTo(this);
+	}
+
+
+	/** save dataseries points to a compressed binary file, see
+	 *  CompressedDataSeries for the encoding */
+	public void saveCompressed(String filename) {
+		try {
+			compress().writeToFile(filename);
+		} catch(IOException err) {
+		    System.out.println(
+							   "DataSeries.saveCompressed: i/o trouble with file " +
+							   filename + "\n" + err.toString());
+		    System.exit(1);
+		}
+	}
+
 
     /** Returns x-value (as double) at specified index */
     public double getX(int index) {
@@ -230,12 +517,11 @@ public class DataSeries extends Vector {
 
     /** Returns an array of all the X values of the points in the dataseries */
     public double[] xToArray() {
-	double[] xTmp = new double[size()];
-	int i=0;
+	double[] xTmp = new double[elementCount];
 	Point p;
-	for(Enumeration e=this.elements(); e.hasMoreElements(); ) {
-	    p=(Point)e.nextElement();
-	    xTmp[i++]=p.getX();
+	for( int i=0; i<elementCount; i++ ) {
+	    p=(Point)elementData[i];
+	    xTmp[i]=p.getX();
 	}
 	return xTmp;
     }
@@ -253,24 +539,22 @@ public class DataSeries extends Vector {
 
     /** Returns an array of all the X values times -1 (useful when x=depth) */
     public double[] xToNegArray() {
-	double[] xTmp = new double[size()];
-	int i=0;
+	double[] xTmp = new double[elementCount];
 	Point p;
-	for(Enumeration e=this.elements(); e.hasMoreElements(); ) {
-	    p=(Point)e.nextElement();
-	    xTmp[i++]= - p.getX();
+	for( int i=0; i<elementCount; i++ ) {
+	    p=(Point)elementData[i];
+	    xTmp[i]= - p.getX();
 	}
 	return xTmp;
     }
 
     /** Returns an array of all the Y values of the points in the dataseries */
     public double[] yToArray() {
-	double[] yTmp = new double[size()];
-	int i=0;
+	double[] yTmp = new double[elementCount];
 	Point p;
-	for(Enumeration e=this.elements(); e.hasMoreElements(); ) {
-	    p=(Point)e.nextElement();
-	    yTmp[i++]=p.getY();
+	for( int i=0; i<elementCount; i++ ) {
+	    p=(Point)elementData[i];
+	    yTmp[i]=p.getY();
 	}
 	return yTmp;
     }
@@ -334,6 +618,22 @@ public class DataSeries extends Vector {
      *  <CODE>foo.length()</CODE> to know which array elements to use. */
     public double[] bestRegressionLine(double stdDevTol1, double stdDevTol2,
 				       double stdDevTol3) {
+	String key = "bestRegressionLine "+stdDevTol1+" "+stdDevTol2+" "+
+	    stdDevTol3;
+	double[][] c = getCached(key);
+	if (c==null) {
+	    double line[] = fitRegressionLine(stdDevTol1,stdDevTol2,stdDevTol3);
+	    if (line.length==0) return line;
+	    c = new double[][] {line};
+	    putCached(key, c);
+	}
+	return c[0].clone();
+    }
+
+    /** Does the actual regression fitting for bestRegressionLine(), whose
+     *  results get cached until the dataseries is next modified. */
+    private double[] fitRegressionLine(double stdDevTol1, double stdDevTol2,
+				       double stdDevTol3) {
 	double line[];
 	if( numPts>1 ) {
 	    SingleRegressionLine singleRegLine= new SingleRegressionLine(this);
@@ -453,6 +753,44 @@ public class DataSeries extends Vector {
 	return sum_y;
     }
 
+    /** Returns approximate median of y values, from a streaming sketch kept
+     *  up to date by add() (so no copy or sort of the data is needed) */
+    public double getMedianY() {
+	return ySketch.getMedian();
+    }
+
+    /** Returns approximate q-quantile of y values (0 &lt;= q &lt;= 1), eg
+     *  getQuantileY(0.9) for the 90th percentile.  Rank error is about 1%,
+     *  see QuantileSketch. */
+    public double getQuantileY(double q) {
+	return ySketch.getQuantile(q);
+    }
+
+    /** Returns a copy of the streaming quantile sketch of the y values, eg
+     *  for combining several dataseries as
+     *  <CODE>QuantileSketch all = a.getQuantileSketchY();
+     *  all.merge(b.getQuantileSketchY());</CODE> (being a copy, merging into
+     *  it doesn't change a's own quantiles). */
+    public QuantileSketch getQuantileSketchY() {
+	return new QuantileSketch(ySketch);
+    }
+
+    /** Starts keeping a histogram of the y values with nbins equal bins from
+     *  min to max, filled with the current points and then kept up to date
+     *  by add(). */
+    public void setHistogramY(double min, double max, int nbins) {
+	yHist = new Histogram(min, max, nbins);
+	double tmpy[] = yToArray();
+	for( int i=0; i<tmpy.length; i++ ) yHist.add(tmpy[i]);
+    }
+
+    /** Returns a copy of the histogram of y values started by
+     *  setHistogramY(), or null if none.  Being a copy, it can be merged
+     *  into without changing this dataseries' own histogram. */
+    public Histogram getHistogramY() {
+	return (yHist==null) ? null : new Histogram(yHist);
+    }
+
     /** Returns the centroid (center of mass) in the x-axis */
     public double getCentroid() {
 	return sum_xy/sum_y;
@@ -461,90 +799,240 @@ public class DataSeries extends Vector {
     /** Returns the peak width at the centroid (center of mass) - I need to
      *  verify the units of the result here, see source... */
     public double getCentroidPeakWidth() {
-	Point p;
+	// read the Points straight out of the Vector's backing array rather
+	// than through a (synchronized) Enumeration
+	double c = sum_xy/sum_x;
 	double sum_tmp=0.;
-	for(Enumeration e=this.elements(); e.hasMoreElements(); ) {
-	    p=(Point)e.nextElement();
-	    sum_tmp += p.getY()*(p.getX()-sum_xy/sum_x);
+	Point p;
+	for( int i=0; i<elementCount; i++ ) {
+	    p=(Point)elementData[i];
+	    sum_tmp += p.getY()*(p.getX()-c);
 	}
 	return sum_tmp/sum_x;
     }
 
+    /** Recomputes all the running sums and min/max values from the points
+     *  currently in the dataseries, in one pass over the points.
+     *  Useful after bulk changes made through the inherited Vector methods,
+     *  which bypass the bookkeeping in <CODE>add(x,y)</CODE>. */
+    public void recomputeStats() {
+	numPts = elementCount;
+	sum_x = sum_y = sum_xx = sum_yy = sum_xy = 0;
+	ySketch.clear();
+	if (yHist!=null) yHist.clear();
+	Point p;
+	double x, y;
+	for( int i=0; i<elementCount; i++ ) {
+	    p=(Point)elementData[i];
+	    x=p.getX();
+	    y=p.getY();
+	    if (i==0) {
+		min_x = max_x = x;
+		min_y = max_y = y;
+	    } else {
+		if (x<min_x) min_x=x;
+		else if (x>max_x) max_x=x;
+		if (y<min_y) min_y=y;
+		else if (y>max_y) max_y=y;
+	    }
+	    sum_x+=x;
+	    sum_y+=y;
+	    sum_xx+=x*x;
+	    sum_yy+=y*y;
+	    sum_xy+=x*y;
+	    ySketch.add(y);
+	    if (yHist!=null) yHist.add(y);
+	}
+    }
+
     /** Rearranges the datapoints into sorted order based on x value */
     public void sort() {
+	if (sortedChangeCount==changeCount()) return;  // unchanged since last sort
 	Collections.sort(this);
+	sortedChangeCount=changeCount();
+    }
+
+    /** Sets the maximum size of the derived-results cache (gradients, sorted
+     *  copies, regression fits, resampled outputs), in number of doubles.
+     *  Least recently used entries are dropped first when it fills up;
+     *  a limit of 0 turns caching off. */
+    public void setCacheLimit(long maxDoubles) {
+	cacheLimit=maxDoubles;
+	if (cacheSize>cacheLimit) clearCache();
+    }
+
+    /** Discards all cached derived results.  Never required for correctness,
+     *  since the cache is dropped automatically whenever the dataseries is
+     *  modified, but frees the memory. */
+    public void clearCache() {
+	cache=null;
+	cacheSize=0;
+    }
+
+    /** Returns the cached arrays for the key, or null if not cached or if
+     *  the dataseries was modified since they were cached. */
+    private double[][] getCached(String key) {
+	if (cache==null) return null;
+	if (cacheChangeCount!=changeCount()) {
+	    clearCache();
+	    return null;
+	}
+	return cache.get(key);
+    }
+
+    /** Caches the arrays for the key against the current change count,
+     *  evicting least recently used entries to stay within cacheLimit. */
+    private void putCached(String key, double[][] value) {
+	long sz = cacheSizeOf(value);
+	if (sz>cacheLimit) return;
+	if (cache==null || cacheChangeCount!=changeCount()) {
+	    // access order = LRU
+	    cache = new LinkedHashMap<String,double[][]>(16, 0.75f, true);
+	    cacheChangeCount=changeCount();
+	    cacheSize=0;
+	}
+	double[][] old = cache.put(key, value);
+	if (old!=null) cacheSize -= cacheSizeOf(old);
+	cacheSize += sz;
+	for(Iterator<double[][]> it=cache.values().iterator();
+	    cacheSize>cacheLimit && it.hasNext(); ) {
+	    cacheSize -= cacheSizeOf(it.next());
+	    it.remove();
+	}
+    }
+
+    private static long cacheSizeOf(double[][] value) {
+	long sz=0;
+	for( int i=0; i<value.length; i++ ) sz+=value[i].length;
+	return sz;
+    }
+
+    /** Returns {x[],y[]} of the points in sorted order; shared cached
+     *  arrays, so must not be modified by the caller. */
+    private double[][] sortedArrays() {
+	sort();  // must sort for interpolation scheme to work (lowest first)
+	double[][] xy = getCached("sorted");
+	if (xy==null) {
+	    xy = new double[][] {xToArray(), yToArray()};
+	    putCached("sorted", xy);
+	}
+	return xy;
+    }
+
+    /** Returns the linear gradients of the sorted points, computing and
+     *  caching them if needed.  There are (numpts-1) gradients, or none for
+     *  an empty dataseries; the ith gradient is valid from x[i] to x[i+1]. */
+    private double[] gradients() {
+	double[][] xy = sortedArrays();
+	double[][] g = getCached("dYdX");
+	if (g==null) {
+	    double tmpx[] = xy[0];
+	    double tmpy[] = xy[1];
+	    int numpts = tmpx.length;
+	    double dYdX[] = new double[Math.max(numpts-1,0)];
+	    for( int i=0; i<numpts-1; i++ ) {
+		dYdX[i] = ( tmpy[i+1] - tmpy[i] ) / ( tmpx[i+1] - tmpx[i] );
+	    }
+	    g = new double[][] {dYdX};
+	    putCached("dYdX", g);
+	}
+	return g[0];
     }
 
     /** Multiplies -1 by each X value in the dataseries.  Useful when dealing with
      *  depths on that axis */
     public DataSeries negateX() {
-	DataSeries output = new DataSeries();
-	Point p;
-	for(Enumeration e=this.elements(); e.hasMoreElements(); ) {
-	    p=(DataSeries.Point)e.nextElement();
-	    output.add(-1*p.getX(),p.getY());
+	return pipeline().negateX().toDataSeries();
+    }
+
+    /** Returns a read-only compressed copy of this dataseries, with the
+     *  points in sorted order since sorted x values compress best.
+     *  This dataseries itself is not modified or reordered. */
+    public CompressedDataSeries compress() {
+	double[][] xy = sortedCopyArrays();
+	return new CompressedDataSeries(xy[0], xy[1],
+					CompressedDataSeries.DEFAULT_BLOCK_SIZE);
+    }
+
+    /** Returns a lazy Pipeline over a sorted copy of this dataseries, so
+     *  that chains of operations like <CODE>pipeline().negateX().resample(
+     *  incr).window(a,b).toDataSeries()</CODE> run in one pass without
+     *  building and sorting an intermediate DataSeries at each step.
+     *  This dataseries itself is not modified or reordered. */
+    public Pipeline pipeline() {
+	double[][] xy = sortedCopyArrays();
+	return new Pipeline(xy[0], xy[1], xy[0].length);
+    }
+
+    /** Returns {x[],y[]} of the points in sorted order without reordering
+     *  this dataseries (shared cached arrays if it's already sorted, so
+     *  must not be modified by the caller). */
+    private double[][] sortedCopyArrays() {
+	if (sortedChangeCount==changeCount()) return sortedArrays();
+	Object[] pts = toArray();
+	Arrays.sort(pts);
+	double[][] xy = {new double[pts.length], new double[pts.length]};
+	for( int i=0; i<pts.length; i++ ) {
+	    xy[0][i] = ((Point)pts[i]).getX();
+	    xy[1][i] = ((Point)pts[i]).getY();
 	}
-	output.sort();
-	return output;
+	return xy;
     }
 
     /** Interpolates the current dataseries into a new dataseries spaced at
      *  the given increment - note the data has to get sorted in the process.
+     *  The new x values run from the lowest x upward while within the data,
+     *  one point each; an increment &lt;= 0 gives an empty dataseries.
      *  Based on getSoundSpeed(z) from P. Brodsky's SoundSpeedProfile class.*/
     public DataSeries resample(double incr) {
-	sort();  // must sort for interpolation scheme to work (lowest first)
+	double[][] xy = sortedArrays();
+	if (xy[0].length==0 || !(incr>0)) return new DataSeries();
+	String key = "resample "+incr;
+	double[][] cached = getCached(key);
 	DataSeries output = new DataSeries();
+	if (cached!=null) {
+	    for( int i=0; i<cached[0].length; i++ )
+		output.add( cached[0][i], cached[1][i] );
+	    return output;
+	}
 	int numpts = getNumPts();
 	double newx;
-	double tmpx[] = xToArray();
-	double tmpy[] = yToArray();
+	double tmpx[] = xy[0];
+	double tmpy[] = xy[1];
+	double dYdX[] = gradients();
 
-	/** Compute linear gradients.  There are (numpts-1) gradients.
-	 *   The ith gradient is valid from x[i] to x[i+1]. */
- 	double dYdX[] = new double[numpts-1];
-	for( int i=0; i<numpts-1; i++ ) {
-	    dYdX[i] = ( tmpy[i+1] - tmpy[i] ) / ( tmpx[i+1] - tmpx[i] );
-	}
-
-	for( int i=0; i<(int)((tmpx[numpts-1]-tmpx[0])/incr)+1; i++ ) {
-	    newx = tmpx[0] + (i*incr);  // new x-value
-	    // Find appropriate (bracketing) X region
-	    for( int j=0; j<numpts-1; j++ ) {
-		if( tmpx[j]<=newx && newx<=tmpx[j+1] ) {
-		    // Interpolate
-		    output.add( newx, tmpy[j] + (newx-tmpx[j])*dYdX[j] );
-		}
-	    }
+	output.add( tmpx[0], tmpy[0] );
+	int j=0;
+	for( long i=1; (newx = tmpx[0] + (i*incr)) <= tmpx[numpts-1]; i++ ) {
+	    // Find appropriate (bracketing) X region - the first one, so a
+	    // new x landing on a data point isn't output twice
+	    while( tmpx[j+1]<newx ) j++;
+	    // Interpolate
+	    output.add( newx, tmpy[j] + (newx-tmpx[j])*dYdX[j] );
 	}
+	putCached(key, new double[][] {output.xToArray(), output.yToArray()});
 	return output;
     }
 
     /** Compute linear gradients.  There are (numpts-1) gradients.
-     *  This MUST be run before interpolateY(x) can be called (they're
-     *  separated so interpolateY(x) can be called multiple times efficiently).
-     *  The ith gradient is valid from x[i] to x[i+1]. */
+     *  The ith gradient is valid from x[i] to x[i+1].  The gradients are
+     *  cached until the dataseries is next modified, and interpolateY(x)
+     *  computes them itself if needed, so calling this first is optional. */
     public void computeLinearGradients() {
-	sort();  // must sort for gradient computation to work (lowest first)
-	int numpts = getNumPts();
-	double x;
-	double tmpx[] = xToArray();
-	double tmpy[] = yToArray();
- 	dYdX = new double[numpts-1];
-	for( int i=0; i<numpts-1; i++ ) {
-	    dYdX[i] = ( tmpy[i+1] - tmpy[i] ) / ( tmpx[i+1] - tmpx[i] );
-	}
+	gradients();
     }
 
     /** Interpolates a y-value from the dataseries given x-value.
-     *  WARNING: Requires computeLinearGradient() to be called first!  (This
-     *  is so that interpolateY(x) can be called multiple times efficiently.)
+     *  The sorted values and gradients are cached between calls so that
+     *  interpolateY(x) can be called multiple times efficiently.
      *  Based on getSoundSpeed(z) from P. Brodsky's SoundSpeedProfile class.*/
     public double interpolateY(double x) {
-	sort();  // must sort for interpolation scheme to work (lowest first)
+	double[][] xy = sortedArrays();
+	double dYdX[] = gradients();
 	int numpts = getNumPts();
 	double newY=9999.0;
-	double tmpx[] = xToArray();
-	double tmpy[] = yToArray();
+	double tmpx[] = xy[0];
+	double tmpy[] = xy[1];
 
 	// Find appropriate (bracketing) X region
 	for( int j=0; j<numpts-1; j++ ) {
@@ -566,6 +1054,8 @@ public class DataSeries extends Vector {
     	sum_xx=0;
     	sum_yy=0;
 	sum_xy=0;
+	ySketch.clear();
+	if (yHist!=null) yHist.clear();
     }
 
     /** Returns a String representation of dataseries, as a column of its
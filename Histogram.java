@@ -0,0 +1,109 @@
+/** Histogram.java */
+
+package edu.washington.apl.aganse.dataTools;
+
+/**
+ * Histogram - counts of values in a fixed set of equal-width bins between
+ * a min and max, plus counts of the values falling below and above that
+ * range.  Can be filled one value at a time as data streams in, and
+ * histograms with the same bins can be merged.<BR>
+ * DataSeries can keep one of these for its y values, see
+ * <CODE>DataSeries.setHistogramY(min,max,nbins)</CODE>.
+ * @version 19 Oct 2026
+ * @see <A HREF="DataSeries.html">DataSeries</A>
+ * @see <A HREF="QuantileSketch.html">QuantileSketch</A>
+ */
+public class Histogram {
+
+    private double min, max, width;
+    private long[] counts;
+    private long under=0, over=0;
+
+    /** Create an empty histogram of nbins equal bins from min to max.
+     *  Bin i covers [min+i*width, min+(i+1)*width); the last bin also
+     *  includes max itself. */
+    public Histogram(double min, double max, int nbins) {
+	if (nbins<1 || !(max>min))
+	    throw new IllegalArgumentException("Histogram: need nbins>0 and " +
+					       "max>min");
+	this.min = min;
+	this.max = max;
+	this.width = (max-min)/nbins;
+	counts = new long[nbins];
+    }
+
+    /** Create a copy of the given histogram, eg to merge other histograms
+     *  into without changing the original */
+    public Histogram(Histogram other) {
+	min = other.min;
+	max = other.max;
+	width = other.width;
+	counts = other.counts.clone();
+	under = other.under;
+	over = other.over;
+    }
+
+    /** Adds a value into its bin (or the under/over count).  NaNs are
+     *  ignored. */
+    public void add(double v) {
+	if (Double.isNaN(v)) return;
+	if (v<min) under++;
+	else if (v>max) over++;
+	else counts[Math.min((int)((v-min)/width), counts.length-1)]++;
+    }
+
+    /** Adds another histogram's counts into this one; both must have the
+     *  same min, max, and number of bins */
+    public void merge(Histogram other) {
+	if (other.min!=min || other.max!=max ||
+	    other.counts.length!=counts.length)
+	    throw new IllegalArgumentException("Histogram: can only merge " +
+					       "histograms with the same bins");
+	for( int i=0; i<counts.length; i++ ) counts[i]+=other.counts[i];
+	under+=other.under;
+	over+=other.over;
+    }
+
+    /** Zeroes all the counts, keeping the bins */
+    public void clear() {
+	for( int i=0; i<counts.length; i++ ) counts[i]=0;
+	under=over=0;
+    }
+
+    /** Returns number of bins */
+    public int getNumBins() {
+	return counts.length;
+    }
+
+    /** Returns count of values in bin i */
+    public long getCount(int i) {
+	return counts[i];
+    }
+
+    /** Returns lower edge of bin i */
+    public double getBinMin(int i) {
+	return min+i*width;
+    }
+
+    /** Returns upper edge of bin i */
+    public double getBinMax(int i) {
+	return (i==counts.length-1) ? max : min+(i+1)*width;
+    }
+
+    /** Returns count of values below min */
+    public long getUnderflow() {
+	return under;
+    }
+
+    /** Returns count of values above max */
+    public long getOverflow() {
+	return over;
+    }
+
+    /** Returns total count of values added, including under/overflow */
+    public long getTotal() {
+	long t=under+over;
+	for( int i=0; i<counts.length; i++ ) t+=counts[i];
+	return t;
+    }
+}
@@ -0,0 +1,215 @@
+/** QuantileSketch.java */
+
+package edu.washington.apl.aganse.dataTools;
+
+import java.util.*;
+
+/**
+ * QuantileSketch - a streaming, mergeable summary of a set of values from
+ * which approximate quantiles (median, percentiles) and ranks can be read at
+ * any time, in bounded memory, without keeping or sorting the values.<BR>
+ * This is a KLL sketch: values go into a buffer at level 0, and whenever a
+ * level fills up it is sorted and every other value (starting at a random
+ * one of the first two) is promoted to the next level with double the
+ * weight.  Lower levels get geometrically smaller capacities, so the sketch
+ * holds on the order of 3k values however many were added, and quantiles
+ * come out with rank error roughly 1.7/k (about 1% for the default k=200).
+ * Two sketches merge by pooling their levels and compacting, so sketches of
+ * separate series, or of chunks loaded in parallel, can be combined.<BR>
+ * DataSeries keeps one of these for its y values, see
+ * <CODE>DataSeries.getQuantileY(q)</CODE>.
+ * @version 19 Oct 2026
+ * @see <A HREF="DataSeries.html">DataSeries</A>
+ * @see <A HREF="Histogram.html">Histogram</A>
+ * @see <A HREF="https://arxiv.org/abs/1603.05346">Karnin, Lang &amp; Liberty, Optimal Quantile Approximation in Streams</A>
+ */
+public class QuantileSketch {
+
+    /** Default accuracy parameter k */
+    public static final int DEFAULT_K = 200;
+    private static final int MIN_CAPACITY = 8;
+
+    private int k;
+    private double[][] levels = new double[1][];
+    private int[] sizes = new int[1];
+    private long n=0;
+    private double min, max;
+    private Random coin = new Random(0x5eedL);
+
+    /** Create an empty sketch with the default accuracy (k=200) */
+    public QuantileSketch() {
+	this(DEFAULT_K);
+    }
+
+    /** Create an empty sketch with accuracy parameter k; rank error is
+     *  roughly 1.7/k and memory roughly 3k values */
+    public QuantileSketch(int k) {
+	if (k<MIN_CAPACITY)
+	    throw new IllegalArgumentException("QuantileSketch: k must be >= " +
+					       MIN_CAPACITY);
+	this.k = k;
+	levels[0] = new double[MIN_CAPACITY];
+    }
+
+    /** Create a copy of the given sketch, eg to merge other sketches into
+     *  without changing the original */
+    public QuantileSketch(QuantileSketch other) {
+	k = other.k;
+	n = other.n;
+	min = other.min;
+	max = other.max;
+	sizes = other.sizes.clone();
+	levels = new double[other.levels.length][];
+	for( int h=0; h<levels.length; h++ )
+	    levels[h] = other.levels[h].clone();
+    }
+
+    /** Adds a value to the sketch.  NaNs are ignored. */
+    public void add(double v) {
+	if (Double.isNaN(v)) return;
+	if (n==0) {
+	    min = max = v;
+	} else {
+	    if (v<min) min=v;
+	    if (v>max) max=v;
+	}
+	n++;
+	append(0, v);
+	if (sizes[0]>=capacity(0)) compress();
+    }
+
+    /** Folds another sketch's values into this one (the other sketch is
+     *  not changed) */
+    public void merge(QuantileSketch other) {
+	if (other.n==0) return;
+	// snapshot the other sketch's level sizes, as appending below would
+	// otherwise keep growing them if other==this
+	int[] otherSizes = other.sizes.clone();
+	if (n==0) {
+	    min = other.min;
+	    max = other.max;
+	} else {
+	    if (other.min<min) min=other.min;
+	    if (other.max>max) max=other.max;
+	}
+	n += other.n;
+	for( int h=0; h<otherSizes.length; h++ )
+	    for( int i=0; i<otherSizes[h]; i++ )
+		append(h, other.levels[h][i]);
+	compress();
+    }
+
+    /** Empties the sketch */
+    public void clear() {
+	levels = new double[1][];
+	levels[0] = new double[MIN_CAPACITY];
+	sizes = new int[1];
+	n=0;
+    }
+
+    /** Returns number of values added (including via merge) */
+    public long getCount() {
+	return n;
+    }
+
+    /** Returns minimum value added (exact) */
+    public double getMin() {
+	return min;
+    }
+
+    /** Returns maximum value added (exact) */
+    public double getMax() {
+	return max;
+    }
+
+    /** Returns the approximate q-quantile, 0 &lt;= q &lt;= 1, ie the value
+     *  with about q*n of the values at or below it.  q=0 and q=1 give the
+     *  exact min and max.  Returns NaN if the sketch is empty. */
+    public double getQuantile(double q) {
+	if (q<0 || q>1)
+	    throw new IllegalArgumentException("QuantileSketch: q must be in " +
+					       "[0,1]");
+	if (n==0) return Double.NaN;
+	if (q==0) return min;
+	if (q==1) return max;
+	// walk the retained values in order by merging the sorted levels,
+	// each value at level h standing in for 2^h of the originals
+	double[][] sorted = new double[levels.length][];
+	int[] pos = new int[levels.length];
+	for( int h=0; h<levels.length; h++ ) {
+	    sorted[h] = Arrays.copyOf(levels[h], sizes[h]);
+	    Arrays.sort(sorted[h]);
+	}
+	double target = q*n;
+	long cum=0;
+	while (true) {
+	    int next=-1;
+	    for( int h=0; h<levels.length; h++ )
+		if (pos[h]<sorted[h].length && (next<0 ||
+		    sorted[h][pos[h]]<sorted[next][pos[next]])) next=h;
+	    if (next<0) return max;
+	    cum += 1L<<next;
+	    if (cum>=target) return sorted[next][pos[next]];
+	    pos[next]++;
+	}
+    }
+
+    /** Returns the approximate median */
+    public double getMedian() {
+	return getQuantile(0.5);
+    }
+
+    /** Returns the approximate fraction of values &lt;= v */
+    public double getRank(double v) {
+	if (n==0) return Double.NaN;
+	long cum=0;
+	for( int h=0; h<levels.length; h++ )
+	    for( int i=0; i<sizes[h]; i++ )
+		if (levels[h][i]<=v) cum += 1L<<h;
+	return (double)cum/n;
+    }
+
+    /** Returns number of values currently retained (a measure of memory
+     *  used, independent of getCount()) */
+    public int getRetained() {
+	int r=0;
+	for( int h=0; h<levels.length; h++ ) r+=sizes[h];
+	return r;
+    }
+
+    /** Capacity of level h, shrinking by 2/3 per level below the top */
+    private int capacity(int h) {
+	int depth = levels.length-1-h;
+	return Math.max(MIN_CAPACITY,
+			(int)Math.ceil(k*Math.pow(2.0/3.0, depth)));
+    }
+
+    private void append(int h, double v) {
+	if (h>=levels.length) {
+	    levels = Arrays.copyOf(levels, h+1);
+	    sizes = Arrays.copyOf(sizes, h+1);
+	    for( int j=0; j<=h; j++ )
+		if (levels[j]==null) levels[j] = new double[MIN_CAPACITY];
+	}
+	if (sizes[h]==levels[h].length)
+	    levels[h] = Arrays.copyOf(levels[h], 2*levels[h].length);
+	levels[h][sizes[h]++] = v;
+    }
+
+    /** Compacts every over-capacity level, lowest first, promoting half of
+     *  its values to the level above */
+    private void compress() {
+	for( int h=0; h<levels.length; h++ ) {
+	    if (sizes[h]<capacity(h)) continue;
+	    double[] lvl = levels[h];
+	    int size = sizes[h];
+	    Arrays.sort(lvl, 0, size);
+	    int even = size & ~1;
+	    for( int i=coin.nextInt(2); i<even; i+=2 )
+		append(h+1, lvl[i]);
+	    // an odd one out stays behind at this level
+	    if (even<size) lvl[0] = lvl[size-1];
+	    sizes[h] = size-even;
+	}
+    }
+}
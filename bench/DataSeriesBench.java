@@ -0,0 +1,80 @@
+/** DataSeriesBench.java */
+
+package edu.washington.apl.aganse.dataTools;
+
+import java.util.*;
+
+/**
+ * DataSeriesBench - rough timing of the full-pass DataSeries statistics
+ * against the original Enumeration-based loops they replaced.  Run as
+ * <CODE>java edu.washington.apl.aganse.dataTools.DataSeriesBench [npts]</CODE>
+ * (default 1000000 points); see the Makefile's bench target.  Each timing
+ * is the median of 21 runs after 20 warmup runs, in milliseconds.
+ */
+public class DataSeriesBench {
+
+    private static final int WARMUP=20, RUNS=21;
+    private static double sink;  // keeps the JIT from dropping the work
+
+    public static void main(String[] args) {
+	int n = (args.length>0) ? Integer.parseInt(args[0]) : 1000000;
+	final DataSeries data = new DataSeries();
+	Random r = new Random(1);
+	double y=1500;
+	for( int i=0; i<n; i++ ) {
+	    y += r.nextGaussian();
+	    data.add(i*0.5, y);
+	}
+	System.out.println("DataSeriesBench: "+n+" points, "+
+			   System.getProperty("java.vm.name")+" "+
+			   System.getProperty("java.version"));
+
+	report("getCentroidPeakWidth, Enumeration loop", new Runnable() {
+		public void run() { sink+=enumCentroidPeakWidth(data); } });
+	report("getCentroidPeakWidth", new Runnable() {
+		public void run() { sink+=data.getCentroidPeakWidth(); } });
+	report("y array, Enumeration loop", new Runnable() {
+		public void run() { sink+=enumYToArray(data).length; } });
+	report("yToArray", new Runnable() {
+		public void run() { sink+=data.yToArray().length; } });
+	report("recomputeStats", new Runnable() {
+		public void run() { data.recomputeStats(); sink+=data.getSumY(); } });
+    }
+
+    private static void report(String label, Runnable task) {
+	for( int i=0; i<WARMUP; i++ ) task.run();
+	double[] t = new double[RUNS];
+	for( int i=0; i<RUNS; i++ ) {
+	    long t0 = System.nanoTime();
+	    task.run();
+	    t[i] = (System.nanoTime()-t0)/1e6;
+	}
+	Arrays.sort(t);
+	System.out.println("  "+label+": "+t[RUNS/2]+" ms");
+    }
+
+    /** The original getCentroidPeakWidth() loop */
+    private static double enumCentroidPeakWidth(DataSeries data) {
+	DataSeries.Point p;
+	double sum_tmp=0.;
+	double sum_x=data.getSumX();
+	double c=data.getCentroid()*data.getSumY()/sum_x;  // = sum_xy/sum_x
+	for(Enumeration e=data.elements(); e.hasMoreElements(); ) {
+	    p=(DataSeries.Point)e.nextElement();
+	    sum_tmp += p.getY()*(p.getX()-c);
+	}
+	return sum_tmp/sum_x;
+    }
+
+    /** The original yToArray() loop */
+    private static double[] enumYToArray(DataSeries data) {
+	double[] yTmp = new double[data.size()];
+	int i=0;
+	DataSeries.Point p;
+	for(Enumeration e=data.elements(); e.hasMoreElements(); ) {
+	    p=(DataSeries.Point)e.nextElement();
+	    yTmp[i++]=p.getY();
+	}
+	return yTmp;
+    }
+}